@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Period;
@@ -16,6 +18,10 @@ public class Employee implements Serializable {
     private String phoneNumber;
     private String address;
     private boolean active;
+    // Dictionary codes for department/position; the String fields above hold
+    // the shared instance of each exact spelling so serialization writes it once
+    private transient int departmentCode;
+    private transient int positionCode;
 
     public Employee(int id, String firstName, String lastName, String email, 
                    String department, String position, double salary, 
@@ -24,8 +30,8 @@ public class Employee implements Serializable {
         this.firstName = firstName;
         this.lastName = lastName;
         this.email = email;
-        this.department = department;
-        this.position = position;
+        assignDepartment(department);
+        assignPosition(position);
         this.salary = salary;
         this.hireDate = hireDate;
         this.phoneNumber = phoneNumber;
@@ -40,6 +46,8 @@ public class Employee implements Serializable {
     public String getEmail() { return email; }
     public String getDepartment() { return department; }
     public String getPosition() { return position; }
+    public int getDepartmentCode() { return departmentCode; }
+    public int getPositionCode() { return positionCode; }
     public double getSalary() { return salary; }
     public LocalDate getHireDate() { return hireDate; }
     public String getPhoneNumber() { return phoneNumber; }
@@ -67,13 +75,13 @@ public class Employee implements Serializable {
 
     public void setDepartment(String department) {
         if (department != null && !department.trim().isEmpty()) {
-            this.department = department;
+            assignDepartment(department);
         }
     }
 
     public void setPosition(String position) {
         if (position != null && !position.trim().isEmpty()) {
-            this.position = position;
+            assignPosition(position);
         }
     }
 
@@ -99,6 +107,23 @@ public class Employee implements Serializable {
         this.active = active;
     }
 
+    private void assignDepartment(String department) {
+        this.departmentCode = FieldDictionary.DEPARTMENTS.encode(department);
+        this.department = FieldDictionary.DEPARTMENTS.decode(departmentCode);
+    }
+
+    private void assignPosition(String position) {
+        this.positionCode = FieldDictionary.POSITIONS.encode(position);
+        this.position = FieldDictionary.POSITIONS.decode(positionCode);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Re-share loaded values through the dictionaries
+        assignDepartment(department);
+        assignPosition(position);
+    }
+
     // Business methods
     public int getYearsOfService() {
         return Period.between(hireDate, LocalDate.now()).getYears();
@@ -5,15 +5,24 @@ import java.util.stream.Collectors;
 
 public class EmployeeDAO {
     private static final String DATA_FILE = "employees.dat";
+    // Set -Dems.storage=offheap to keep records in direct memory instead of the heap
+    private static final String STORAGE_PROPERTY = "ems.storage";
     private Map<Integer, Employee> employees;
     private int nextId;
 
     public EmployeeDAO() {
-        employees = new HashMap<>();
+        employees = createStore(0);
         nextId = 1;
         loadFromFile();
     }
 
+    static Map<Integer, Employee> createStore(int expectedSize) {
+        if ("offheap".equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY))) {
+            return new OffHeapEmployeeStore(expectedSize);
+        }
+        return new HashMap<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+    }
+
     // CREATE operations
     public boolean addEmployee(Employee employee) {
         if (employee == null || employees.containsKey(employee.getId())) {
@@ -67,8 +76,17 @@ public class EmployeeDAO {
     }
 
     public List<Employee> getEmployeesByDepartment(String department) {
+        int group = FieldDictionary.DEPARTMENTS.groupOf(department);
+        if (group == FieldDictionary.UNKNOWN) {
+            return new ArrayList<>();
+        }
+        if (employees instanceof OffHeapEmployeeStore store) {
+            return Arrays.stream(store.idsInDepartmentGroup(group))
+                    .mapToObj(this::getEmployee)
+                    .collect(Collectors.toList());
+        }
         return employees.values().stream()
-                .filter(emp -> emp.getDepartment().equalsIgnoreCase(department))
+                .filter(emp -> FieldDictionary.DEPARTMENTS.group(emp.getDepartmentCode()) == group)
                 .collect(Collectors.toList());
     }
 
@@ -167,15 +185,24 @@ public class EmployeeDAO {
     }
 
     public int getActiveEmployeesCount() {
+        if (employees instanceof OffHeapEmployeeStore store) {
+            return store.countActive();
+        }
         return (int) employees.values().stream().filter(Employee::isActive).count();
     }
 
     public Map<String, Long> getDepartmentStatistics() {
+        if (employees instanceof OffHeapEmployeeStore store) {
+            return store.countByDepartment();
+        }
         return employees.values().stream()
                 .collect(Collectors.groupingBy(Employee::getDepartment, Collectors.counting()));
     }
 
     public double getAverageSalary() {
+        if (employees instanceof OffHeapEmployeeStore store) {
+            return store.averageSalary();
+        }
         return employees.values().stream()
                 .mapToDouble(Employee::getSalary)
                 .average()
@@ -183,14 +210,25 @@ public class EmployeeDAO {
     }
 
     public double getAverageSalaryByDepartment(String department) {
+        int group = FieldDictionary.DEPARTMENTS.groupOf(department);
+        if (group == FieldDictionary.UNKNOWN) {
+            return 0.0;
+        }
+        if (employees instanceof OffHeapEmployeeStore store) {
+            return store.averageSalaryInDepartmentGroup(group);
+        }
         return employees.values().stream()
-                .filter(emp -> emp.getDepartment().equalsIgnoreCase(department))
+                .filter(emp -> FieldDictionary.DEPARTMENTS.group(emp.getDepartmentCode()) == group)
                 .mapToDouble(Employee::getSalary)
                 .average()
                 .orElse(0.0);
     }
 
     public Employee getHighestPaidEmployee() {
+        if (employees instanceof OffHeapEmployeeStore store) {
+            OptionalInt id = store.highestPaidId();
+            return id.isPresent() ? getEmployee(id.getAsInt()) : null;
+        }
         return employees.values().stream()
                 .max(Comparator.comparingDouble(Employee::getSalary))
                 .orElse(null);
@@ -203,24 +241,26 @@ public class EmployeeDAO {
     }
 
     // File operations
-    @SuppressWarnings("unchecked")
     private void loadFromFile() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(DATA_FILE))) {
-            employees = (Map<Integer, Employee>) ois.readObject();
-            // Find the next available ID
-            nextId = employees.keySet().stream().max(Integer::compareTo).orElse(0) + 1;
+        StartupProfiler profiler = new StartupProfiler();
+        try {
+            EmployeeDataFile.LoadResult result = EmployeeDataFile.read(DATA_FILE, EmployeeDAO::createStore, profiler);
+            employees = result.getEmployees();
+            // The next available ID is tracked while records are decoded
+            nextId = result.getMaxId() + 1;
             System.out.println("Employee data loaded successfully. Total employees: " + employees.size());
+            profiler.printReport();
         } catch (FileNotFoundException e) {
             System.out.println("No existing data file found. Starting with empty database.");
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException | ClassNotFoundException | IllegalStateException e) {
             System.out.println("Error loading employee data: " + e.getMessage());
-            employees = new HashMap<>();
+            employees.clear();
         }
     }
 
     public void saveToFile() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(employees);
+        try {
+            EmployeeDataFile.write(DATA_FILE, employees.values());
             System.out.println("Employee data saved successfully.");
         } catch (IOException e) {
             System.out.println("Error saving employee data: " + e.getMessage());
@@ -0,0 +1,431 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+public class EmployeeDataFile {
+    // File layout: header, then length-prefixed chunks terminated by an empty
+    // chunk. Each chunk holds the department and position values its records
+    // use, followed by the records, so chunks decode independently.
+    private static final int MAGIC = 0x454D5332; // "EMS2"
+    private static final int VERSION = 1;
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+    // Header object of the earlier serialized format that streamed one Employee per record
+    private static final String RECORD_STREAM = "employees-record-stream";
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int CHUNK_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int CHUNK_RECORDS = 8192;
+    // id, flags, two codes, salary and five string lengths
+    private static final int MIN_RECORD_BYTES = 4 + 1 + 4 + 4 + 8 + 5 * 4;
+
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_HIRE_DATE = 2;
+
+    private EmployeeDataFile() {
+    }
+
+    public static void write(String filename, Collection<Employee> employees) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(employees.size());
+
+            ChunkWriter chunk = new ChunkWriter();
+            for (Employee employee : employees) {
+                chunk.add(employee);
+                if (chunk.records == CHUNK_RECORDS) {
+                    chunk.writeTo(out);
+                }
+            }
+            if (chunk.records > 0) {
+                chunk.writeTo(out);
+            }
+            out.writeInt(0);
+        }
+    }
+
+    public static class LoadResult {
+        private final Map<Integer, Employee> employees;
+        private int maxId;
+
+        private LoadResult(Map<Integer, Employee> employees) {
+            this.employees = employees;
+        }
+
+        public Map<Integer, Employee> getEmployees() { return employees; }
+        public int getMaxId() { return maxId; }
+
+        private void add(Employee employee) {
+            employees.put(employee.getId(), employee);
+            maxId = Math.max(maxId, employee.getId());
+        }
+
+        private void add(DecodedChunk chunk) {
+            for (Employee employee : chunk.employees) {
+                employees.put(employee.getId(), employee);
+            }
+            maxId = Math.max(maxId, chunk.maxId);
+        }
+    }
+
+    // Loads every record into a store created for the header's record count.
+    // Chunks are read on this thread, decoded on a worker pool and inserted as
+    // they complete, with a bounded number in flight so neither the raw file
+    // nor the whole decoded object graph is held at once. Files written by
+    // older versions with Java serialization are still accepted.
+    public static LoadResult read(String filename, IntFunction<Map<Integer, Employee>> storeFactory,
+                                  StartupProfiler profiler) throws IOException, ClassNotFoundException {
+        File file = new File(filename);
+        long fileLength = file.length();
+        CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(counter))) {
+            in.mark(Integer.BYTES);
+            int magic = in.readInt();
+            if (magic >>> 16 == SERIALIZATION_MAGIC) {
+                in.reset();
+                return readSerialized(in, fileLength, storeFactory, profiler);
+            }
+            if (magic != MAGIC) {
+                throw new IOException("Unrecognized data file format");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported data file version: " + version);
+            }
+            int totalRecords = in.readInt();
+            if (totalRecords < 0 || totalRecords > fileLength / MIN_RECORD_BYTES) {
+                throw new IOException("Invalid record count: " + totalRecords);
+            }
+            profiler.endPhase("header");
+            return readChunks(in, fileLength, totalRecords, storeFactory.apply(totalRecords), profiler);
+        } finally {
+            profiler.addBytesRead(counter.count);
+        }
+    }
+
+    private static LoadResult readChunks(DataInputStream in, long fileLength, int totalRecords,
+                                         Map<Integer, Employee> target, StartupProfiler profiler)
+            throws IOException {
+        LoadResult result = new LoadResult(target);
+        int workers = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Deque<Future<DecodedChunk>> pending = new ArrayDeque<>();
+        long position = HEADER_BYTES;
+        long announced = 0;
+        try {
+            while (true) {
+                long readStart = System.nanoTime();
+                int records = in.readInt();
+                if (records == 0) {
+                    break;
+                }
+                int length = in.readInt();
+                position += CHUNK_HEADER_BYTES;
+                if (records < 0 || length < 0 || length > fileLength - position
+                        || records > length / MIN_RECORD_BYTES) {
+                    throw new IOException("Corrupt chunk header at byte " + (position - CHUNK_HEADER_BYTES));
+                }
+                announced += records;
+                if (announced > totalRecords) {
+                    throw new IOException("Chunks hold more records than the header's " + totalRecords);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                position += length;
+                profiler.addPhase("read", System.nanoTime() - readStart);
+
+                pending.add(pool.submit(() -> decodeChunk(bytes, records)));
+                if (pending.size() >= 2 * workers) {
+                    insert(pending.poll(), result, profiler);
+                }
+            }
+            while (!pending.isEmpty()) {
+                insert(pending.poll(), result, profiler);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        if (announced != totalRecords) {
+            throw new IOException("Expected " + totalRecords + " records but found " + announced);
+        }
+        return result;
+    }
+
+    private static void insert(Future<DecodedChunk> future, LoadResult result, StartupProfiler profiler)
+            throws IOException {
+        long waitStart = System.nanoTime();
+        DecodedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading employee data");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Corrupt data file: " + cause, cause);
+        }
+        long insertStart = System.nanoTime();
+        profiler.addPhase("wait", insertStart - waitStart);
+        // Worker wall time summed over chunks, so it can exceed the total
+        profiler.addPhase("decode (sum)", chunk.decodeNanos);
+        result.add(chunk);
+        profiler.addRecords(chunk.employees.size());
+        profiler.addPhase("index", System.nanoTime() - insertStart);
+    }
+
+    // Both earlier formats: the whole HashMap, or a record count followed by
+    // one serialized Employee per record
+    @SuppressWarnings("unchecked")
+    private static LoadResult readSerialized(InputStream in, long fileLength,
+                                             IntFunction<Map<Integer, Employee>> storeFactory,
+                                             StartupProfiler profiler) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(in);
+        Object header = ois.readObject();
+        LoadResult result;
+        if (header instanceof Map) {
+            Map<Integer, Employee> loaded = (Map<Integer, Employee>) header;
+            profiler.endPhase("deserialize");
+            result = new LoadResult(storeFactory.apply(loaded.size()));
+            loaded.values().forEach(result::add);
+        } else if (RECORD_STREAM.equals(header)) {
+            int count = ois.readInt();
+            if (count < 0 || count > fileLength) {
+                throw new IOException("Invalid record count: " + count);
+            }
+            result = new LoadResult(storeFactory.apply(count));
+            for (int i = 0; i < count; i++) {
+                result.add((Employee) ois.readObject());
+            }
+        } else {
+            throw new IOException("Unrecognized data file format");
+        }
+        profiler.addRecords(result.employees.size());
+        profiler.endPhase("index");
+        return result;
+    }
+
+    // Decoded records, the highest id among them and the wall time spent decoding
+    private static class DecodedChunk {
+        private final List<Employee> employees;
+        private int maxId;
+        private long decodeNanos;
+
+        private DecodedChunk(int records) {
+            employees = new ArrayList<>(records);
+        }
+
+        private void add(Employee employee) {
+            employees.add(employee);
+            maxId = Math.max(maxId, employee.getId());
+        }
+    }
+
+    private static DecodedChunk decodeChunk(byte[] bytes, int records) throws IOException {
+        long start = System.nanoTime();
+        DecodedChunk chunk = new DecodedChunk(records);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            String[] departments = readDictionary(in, FieldDictionary.DEPARTMENTS);
+            String[] positions = readDictionary(in, FieldDictionary.POSITIONS);
+            for (int i = 0; i < records; i++) {
+                chunk.add(readRecord(in, departments, positions));
+            }
+            if (in.available() > 0) {
+                throw new IOException("Unexpected trailing bytes in chunk");
+            }
+        } catch (RuntimeException e) {
+            // Out-of-range values such as an invalid hire date
+            throw new IOException("Corrupt chunk: " + e.getMessage(), e);
+        }
+        chunk.decodeNanos = System.nanoTime() - start;
+        return chunk;
+    }
+
+    // Counts bytes actually pulled from the file for the startup report
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    // Buffers one chunk, numbering dictionary values in order of first use
+    private static class ChunkWriter {
+        private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+        private final ChunkDictionary departments = new ChunkDictionary(FieldDictionary.DEPARTMENTS);
+        private final ChunkDictionary positions = new ChunkDictionary(FieldDictionary.POSITIONS);
+        private int records;
+
+        private void add(Employee employee) throws IOException {
+            writeRecord(recordOut, employee, departments.localCode(employee.getDepartmentCode()),
+                    positions.localCode(employee.getPositionCode()));
+            records++;
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            DataOutputStream headerOut = new DataOutputStream(headerBytes);
+            departments.writeTo(headerOut);
+            positions.writeTo(headerOut);
+            out.writeInt(records);
+            out.writeInt(headerBytes.size() + recordBytes.size());
+            headerBytes.writeTo(out);
+            recordBytes.writeTo(out);
+            recordBytes.reset();
+            departments.clear();
+            positions.clear();
+            records = 0;
+        }
+    }
+
+    private static class ChunkDictionary {
+        private final FieldDictionary dictionary;
+        private final Map<Integer, Integer> localCodes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private ChunkDictionary(FieldDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        private int localCode(int code) {
+            if (code == FieldDictionary.UNKNOWN) {
+                return FieldDictionary.UNKNOWN;
+            }
+            return localCodes.computeIfAbsent(code, key -> {
+                values.add(dictionary.decode(key));
+                return values.size() - 1;
+            });
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+
+        private void clear() {
+            localCodes.clear();
+            values.clear();
+        }
+    }
+
+    // Records
+    private static void writeRecord(DataOutputStream out, Employee employee, int departmentCode, int positionCode)
+            throws IOException {
+        LocalDate hireDate = employee.getHireDate();
+        out.writeInt(employee.getId());
+        out.writeByte((employee.isActive() ? FLAG_ACTIVE : 0) | (hireDate != null ? FLAG_HIRE_DATE : 0));
+        out.writeInt(departmentCode);
+        out.writeInt(positionCode);
+        out.writeDouble(employee.getSalary());
+        if (hireDate != null) {
+            out.writeLong(hireDate.toEpochDay());
+        }
+        writeString(out, employee.getFirstName());
+        writeString(out, employee.getLastName());
+        writeString(out, employee.getEmail());
+        writeString(out, employee.getPhoneNumber());
+        writeString(out, employee.getAddress());
+    }
+
+    private static Employee readRecord(DataInputStream in, String[] departments, String[] positions)
+            throws IOException {
+        int id = in.readInt();
+        int flags = in.readByte();
+        String department = lookup(departments, in.readInt());
+        String position = lookup(positions, in.readInt());
+        double salary = in.readDouble();
+        LocalDate hireDate = (flags & FLAG_HIRE_DATE) != 0 ? LocalDate.ofEpochDay(in.readLong()) : null;
+        Employee employee = new Employee(id, readString(in), readString(in), readString(in),
+                department, position, salary, hireDate, readString(in), readString(in));
+        employee.setActive((flags & FLAG_ACTIVE) != 0);
+        return employee;
+    }
+
+    private static String lookup(String[] dictionary, int code) throws IOException {
+        if (code == FieldDictionary.UNKNOWN) {
+            return null;
+        }
+        if (code < 0 || code >= dictionary.length) {
+            throw new IOException("Invalid dictionary code: " + code);
+        }
+        return dictionary[code];
+    }
+
+    // Loaded values are mapped to the shared instances before records decode
+    private static String[] readDictionary(DataInputStream in, FieldDictionary dictionary) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available() / Integer.BYTES) {
+            throw new IOException("Invalid dictionary size: " + count);
+        }
+        String[] values = new String[count];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dictionary.canonical(readString(in));
+        }
+        return values;
+    }
+
+    // Strings are a length (-1 for null) followed by UTF-8 bytes
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Only used on chunk buffers, where available() is the bytes left in the chunk
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FieldDictionary {
+    // Shared dictionaries for the low-cardinality Employee fields
+    public static final FieldDictionary DEPARTMENTS = new FieldDictionary();
+    public static final FieldDictionary POSITIONS = new FieldDictionary();
+
+    public static final int UNKNOWN = -1;
+
+    // Each exact spelling gets its own code and one shared String instance;
+    // spellings differing only by case share a group used for comparisons
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> groups = new ConcurrentHashMap<>();
+    // Copy-on-write so decode never locks; values are few and rarely added
+    private volatile int[] valueGroups = new int[0];
+    private volatile String[] values = new String[0];
+
+    // Returns the code for a value, registering it on first use
+    public int encode(String value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code == null) {
+                String key = normalize(value);
+                Integer group = groups.get(key);
+                if (group == null) {
+                    group = groups.size();
+                    groups.put(key, group);
+                }
+                code = values.length;
+                int[] grownGroups = Arrays.copyOf(valueGroups, code + 1);
+                grownGroups[code] = group;
+                valueGroups = grownGroups;
+                String[] grown = Arrays.copyOf(values, code + 1);
+                grown[code] = value;
+                values = grown;
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    public String decode(int code) {
+        String[] snapshot = values;
+        return code >= 0 && code < snapshot.length ? snapshot[code] : null;
+    }
+
+    public String canonical(String value) {
+        return decode(encode(value));
+    }
+
+    // Case-insensitive group of a registered code
+    public int group(int code) {
+        int[] snapshot = valueGroups;
+        return code >= 0 && code < snapshot.length ? snapshot[code] : UNKNOWN;
+    }
+
+    // Looks up a value's group without registering it; UNKNOWN if never seen
+    public int groupOf(String value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return group(code);
+        }
+        Integer group = groups.get(normalize(value));
+        return group != null ? group : UNKNOWN;
+    }
+
+    // Folds each code point the way String.equalsIgnoreCase compares them, so
+    // groups match exactly the values that method would consider equal
+    private static String normalize(String value) {
+        StringBuilder folded = new StringBuilder(value.length());
+        value.codePoints().forEach(c -> folded.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c))));
+        return folded.toString();
+    }
+}
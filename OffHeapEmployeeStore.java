@@ -0,0 +1,535 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+public class OffHeapEmployeeStore extends AbstractMap<Integer, Employee> {
+    // Fixed-size slot layout for the numeric fields
+    private static final int ID = 0;
+    private static final int FLAGS = 4;
+    private static final int DEPARTMENT = 8;
+    private static final int POSITION = 12;
+    private static final int SALARY = 16;
+    private static final int HIRE_DATE = 24;
+    private static final int STRINGS = 32;
+    private static final int STRING_FIELDS = 5;
+    private static final int SLOT_SIZE = STRINGS + STRING_FIELDS * Long.BYTES;
+
+    private static final byte USED = 1;
+    private static final byte ACTIVE = 2;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final long NO_STRING = -1L;
+
+    private static final int SLOT_PAGE_BITS = 16;
+    private static final int SLOTS_PER_PAGE = 1 << SLOT_PAGE_BITS;
+    private static final int STRING_PAGE_SIZE = 1 << 24;
+
+    private final List<ByteBuffer> slotPages = new ArrayList<>();
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    // Variable-length region: each string is an int length followed by UTF-8 bytes,
+    // addressed as (page << 32 | offset)
+    private List<ByteBuffer> stringPages = new ArrayList<>();
+    private int stringOffset = STRING_PAGE_SIZE;
+    private long liveStringBytes;
+    private long deadStringBytes;
+
+    // Open-addressing id -> slot index; values hold slot + 1 so 0 marks an empty bucket
+    private int[] indexKeys;
+    private int[] indexSlots;
+    private int size;
+
+    public OffHeapEmployeeStore() {
+        this(0);
+    }
+
+    // Sizes the index up front so bulk loads do not rehash as they grow
+    public OffHeapEmployeeStore(int expectedSize) {
+        int capacity = 64;
+        while (capacity * 3L < expectedSize * 4L && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        indexKeys = new int[capacity];
+        indexSlots = new int[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && findBucket((Integer) key) >= 0;
+    }
+
+    @Override
+    public Employee get(Object key) {
+        if (!(key instanceof Integer)) {
+            return null;
+        }
+        int bucket = findBucket((Integer) key);
+        return bucket >= 0 ? readSlot(indexSlots[bucket] - 1) : null;
+    }
+
+    @Override
+    public Employee put(Integer key, Employee employee) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(employee);
+        // Allocate everything before touching the slot or index so a failed
+        // allocation leaves the store unchanged
+        long[] strings = writeStrings(employee);
+        int bucket = findBucket(key);
+        Employee previous = null;
+        int slot;
+        if (bucket >= 0) {
+            slot = indexSlots[bucket] - 1;
+            previous = readSlot(slot);
+            releaseStrings(slot);
+        } else {
+            try {
+                slot = allocateSlot();
+            } catch (IllegalStateException e) {
+                releaseStrings(strings);
+                throw e;
+            }
+            insertIndex(key, slot);
+            size++;
+        }
+        writeSlot(slot, key, employee, strings);
+        compactIfNeeded();
+        return previous;
+    }
+
+    @Override
+    public Employee remove(Object key) {
+        if (!(key instanceof Integer)) {
+            return null;
+        }
+        int bucket = findBucket((Integer) key);
+        if (bucket < 0) {
+            return null;
+        }
+        int slot = indexSlots[bucket] - 1;
+        Employee previous = readSlot(slot);
+        removeBucket(bucket);
+        releaseStrings(slot);
+        slotPage(slot).put(slotOffset(slot) + FLAGS, (byte) 0);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+        compactIfNeeded();
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        slotPages.clear();
+        slotCount = 0;
+        freeCount = 0;
+        stringPages = new ArrayList<>();
+        stringOffset = STRING_PAGE_SIZE;
+        liveStringBytes = 0;
+        deadStringBytes = 0;
+        indexKeys = new int[64];
+        indexSlots = new int[64];
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<Integer, Employee>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Entry<Integer, Employee>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+                    private int lastId;
+                    private boolean canRemove;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < slotCount;
+                    }
+
+                    @Override
+                    public Entry<Integer, Employee> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Employee employee = readSlot(next);
+                        lastId = employee.getId();
+                        canRemove = true;
+                        next = advance(next + 1);
+                        return new SimpleImmutableEntry<>(lastId, employee);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (!canRemove) {
+                            throw new IllegalStateException();
+                        }
+                        OffHeapEmployeeStore.this.remove(lastId);
+                        canRemove = false;
+                    }
+
+                    private int advance(int slot) {
+                        while (slot < slotCount && !isUsed(slot)) {
+                            slot++;
+                        }
+                        return slot;
+                    }
+                };
+            }
+        };
+    }
+
+    // Scans over the numeric slot fields that skip building Employee objects
+    public int countActive() {
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if ((flags(slot) & (USED | ACTIVE)) == (USED | ACTIVE)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public double averageSalary() {
+        return averageSalaryInDepartmentGroup(FieldDictionary.UNKNOWN);
+    }
+
+    // Averages every record when group is UNKNOWN
+    public double averageSalaryInDepartmentGroup(int group) {
+        double total = 0.0;
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isUsed(slot) && (group == FieldDictionary.UNKNOWN || departmentGroup(slot) == group)) {
+                total += slotPage(slot).getDouble(slotOffset(slot) + SALARY);
+                count++;
+            }
+        }
+        return count > 0 ? total / count : 0.0;
+    }
+
+    public OptionalInt highestPaidId() {
+        int bestSlot = -1;
+        double bestSalary = 0.0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isUsed(slot)) {
+                double salary = slotPage(slot).getDouble(slotOffset(slot) + SALARY);
+                if (bestSlot < 0 || salary > bestSalary) {
+                    bestSlot = slot;
+                    bestSalary = salary;
+                }
+            }
+        }
+        return bestSlot < 0 ? OptionalInt.empty() : OptionalInt.of(slotPage(bestSlot).getInt(slotOffset(bestSlot) + ID));
+    }
+
+    public int[] idsInDepartmentGroup(int group) {
+        int[] ids = new int[16];
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isUsed(slot) && departmentGroup(slot) == group) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = slotPage(slot).getInt(slotOffset(slot) + ID);
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    // Headcount per exact department spelling, counted by dictionary code
+    public Map<String, Long> countByDepartment() {
+        long[] counts = new long[16];
+        long unknown = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isUsed(slot)) {
+                int code = slotPage(slot).getInt(slotOffset(slot) + DEPARTMENT);
+                if (code == FieldDictionary.UNKNOWN) {
+                    unknown++;
+                    continue;
+                }
+                if (code >= counts.length) {
+                    counts = Arrays.copyOf(counts, Math.max(code + 1, counts.length * 2));
+                }
+                counts[code]++;
+            }
+        }
+        Map<String, Long> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(FieldDictionary.DEPARTMENTS.decode(code), counts[code]);
+            }
+        }
+        if (unknown > 0) {
+            result.put(null, unknown);
+        }
+        return result;
+    }
+
+    // Slot storage
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == slotPages.size() * SLOTS_PER_PAGE) {
+            slotPages.add(allocatePage(SLOTS_PER_PAGE * SLOT_SIZE));
+        }
+        return slotCount++;
+    }
+
+    // Direct memory is capped by -XX:MaxDirectMemorySize (the -Xmx value by default);
+    // running out is reported as an exception the DAO can handle
+    private static ByteBuffer allocatePage(int bytes) {
+        try {
+            return ByteBuffer.allocateDirect(bytes);
+        } catch (OutOfMemoryError e) {
+            throw new IllegalStateException("Off-heap employee store (-Dems.storage=offheap) is out of direct memory;"
+                    + " raise -XX:MaxDirectMemorySize", e);
+        }
+    }
+
+    private ByteBuffer slotPage(int slot) {
+        return slotPages.get(slot >>> SLOT_PAGE_BITS);
+    }
+
+    private static int slotOffset(int slot) {
+        return (slot & (SLOTS_PER_PAGE - 1)) * SLOT_SIZE;
+    }
+
+    private byte flags(int slot) {
+        return slotPage(slot).get(slotOffset(slot) + FLAGS);
+    }
+
+    private boolean isUsed(int slot) {
+        return (flags(slot) & USED) != 0;
+    }
+
+    private int departmentGroup(int slot) {
+        return FieldDictionary.DEPARTMENTS.group(slotPage(slot).getInt(slotOffset(slot) + DEPARTMENT));
+    }
+
+    private void writeSlot(int slot, int id, Employee employee, long[] strings) {
+        ByteBuffer page = slotPage(slot);
+        int base = slotOffset(slot);
+        page.putInt(base + ID, id);
+        page.put(base + FLAGS, (byte) (USED | (employee.isActive() ? ACTIVE : 0)));
+        page.putInt(base + DEPARTMENT, employee.getDepartmentCode());
+        page.putInt(base + POSITION, employee.getPositionCode());
+        page.putDouble(base + SALARY, employee.getSalary());
+        LocalDate hireDate = employee.getHireDate();
+        page.putLong(base + HIRE_DATE, hireDate != null ? hireDate.toEpochDay() : NO_DATE);
+        for (int i = 0; i < STRING_FIELDS; i++) {
+            page.putLong(base + STRINGS + i * Long.BYTES, strings[i]);
+        }
+    }
+
+    private Employee readSlot(int slot) {
+        ByteBuffer page = slotPage(slot);
+        int base = slotOffset(slot);
+        long epochDay = page.getLong(base + HIRE_DATE);
+        Employee employee = new Employee(
+                page.getInt(base + ID),
+                readString(page.getLong(base + STRINGS)),
+                readString(page.getLong(base + STRINGS + Long.BYTES)),
+                readString(page.getLong(base + STRINGS + 2 * Long.BYTES)),
+                FieldDictionary.DEPARTMENTS.decode(page.getInt(base + DEPARTMENT)),
+                FieldDictionary.POSITIONS.decode(page.getInt(base + POSITION)),
+                page.getDouble(base + SALARY),
+                epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null,
+                readString(page.getLong(base + STRINGS + 3 * Long.BYTES)),
+                readString(page.getLong(base + STRINGS + 4 * Long.BYTES)));
+        employee.setActive((page.get(base + FLAGS) & ACTIVE) != 0);
+        return employee;
+    }
+
+    // String region
+    private long[] writeStrings(Employee employee) {
+        String[] values = {employee.getFirstName(), employee.getLastName(), employee.getEmail(),
+                employee.getPhoneNumber(), employee.getAddress()};
+        long[] refs = new long[STRING_FIELDS];
+        Arrays.fill(refs, NO_STRING);
+        try {
+            for (int i = 0; i < STRING_FIELDS; i++) {
+                refs[i] = writeString(values[i]);
+            }
+        } catch (RuntimeException e) {
+            releaseStrings(refs);
+            throw e;
+        }
+        return refs;
+    }
+
+    private long writeString(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return appendString(bytes, 0, bytes.length, null);
+    }
+
+    private long appendString(byte[] bytes, int from, int length, ByteBuffer source) {
+        int total = Integer.BYTES + length;
+        if (total > STRING_PAGE_SIZE) {
+            throw new IllegalArgumentException("String field too large: " + length + " bytes");
+        }
+        if (stringOffset + total > STRING_PAGE_SIZE) {
+            stringPages.add(allocatePage(STRING_PAGE_SIZE));
+            stringOffset = 0;
+        }
+        ByteBuffer page = stringPages.get(stringPages.size() - 1);
+        page.putInt(stringOffset, length);
+        if (source != null) {
+            page.put(stringOffset + Integer.BYTES, source, from, length);
+        } else {
+            page.put(stringOffset + Integer.BYTES, bytes, from, length);
+        }
+        long ref = ((long) (stringPages.size() - 1) << 32) | stringOffset;
+        stringOffset += total;
+        liveStringBytes += total;
+        return ref;
+    }
+
+    private String readString(long ref) {
+        if (ref == NO_STRING) {
+            return null;
+        }
+        ByteBuffer page = stringPages.get((int) (ref >>> 32));
+        int offset = (int) ref;
+        byte[] bytes = new byte[page.getInt(offset)];
+        page.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void releaseStrings(int slot) {
+        ByteBuffer page = slotPage(slot);
+        int base = slotOffset(slot);
+        for (int i = 0; i < STRING_FIELDS; i++) {
+            releaseString(page.getLong(base + STRINGS + i * Long.BYTES));
+        }
+    }
+
+    private void releaseStrings(long[] refs) {
+        for (long ref : refs) {
+            releaseString(ref);
+        }
+    }
+
+    private void releaseString(long ref) {
+        if (ref != NO_STRING) {
+            int total = Integer.BYTES + stringPages.get((int) (ref >>> 32)).getInt((int) ref);
+            liveStringBytes -= total;
+            deadStringBytes += total;
+        }
+    }
+
+    // Rewrites live strings into fresh pages once more than half the region is garbage.
+    // New pages are appended so every ref stays valid if direct memory runs out
+    // part way; the old pages are only dropped once everything has moved.
+    private void compactIfNeeded() {
+        if (deadStringBytes < STRING_PAGE_SIZE || deadStringBytes < liveStringBytes) {
+            return;
+        }
+        int oldPageCount = stringPages.size();
+        stringOffset = STRING_PAGE_SIZE;
+        try {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (!isUsed(slot)) {
+                    continue;
+                }
+                ByteBuffer page = slotPage(slot);
+                int base = slotOffset(slot);
+                for (int i = 0; i < STRING_FIELDS; i++) {
+                    int field = base + STRINGS + i * Long.BYTES;
+                    long ref = page.getLong(field);
+                    if (ref != NO_STRING && (int) (ref >>> 32) < oldPageCount) {
+                        ByteBuffer source = stringPages.get((int) (ref >>> 32));
+                        int offset = (int) ref;
+                        page.putLong(field, appendString(null, offset + Integer.BYTES, source.getInt(offset), source));
+                        releaseString(ref);
+                    }
+                }
+            }
+        } catch (IllegalStateException e) {
+            // Out of direct memory: keep both copies and retry on a later write
+            return;
+        }
+        for (int i = 0; i < oldPageCount; i++) {
+            stringPages.set(i, null);
+        }
+        deadStringBytes = 0;
+    }
+
+    // Primitive index with linear probing
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findBucket(int id) {
+        int mask = indexKeys.length - 1;
+        for (int bucket = hash(id) & mask; indexSlots[bucket] != 0; bucket = (bucket + 1) & mask) {
+            if (indexKeys[bucket] == id) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    private void insertIndex(int id, int slot) {
+        if ((size + 1) * 4 > indexKeys.length * 3) {
+            resizeIndex();
+        }
+        int mask = indexKeys.length - 1;
+        int bucket = hash(id) & mask;
+        while (indexSlots[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        indexKeys[bucket] = id;
+        indexSlots[bucket] = slot + 1;
+    }
+
+    private void resizeIndex() {
+        int[] oldKeys = indexKeys;
+        int[] oldSlots = indexSlots;
+        indexKeys = new int[oldKeys.length * 2];
+        indexSlots = new int[oldSlots.length * 2];
+        int mask = indexKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] != 0) {
+                int bucket = hash(oldKeys[i]) & mask;
+                while (indexSlots[bucket] != 0) {
+                    bucket = (bucket + 1) & mask;
+                }
+                indexKeys[bucket] = oldKeys[i];
+                indexSlots[bucket] = oldSlots[i];
+            }
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void removeBucket(int hole) {
+        int mask = indexKeys.length - 1;
+        indexSlots[hole] = 0;
+        for (int bucket = (hole + 1) & mask; indexSlots[bucket] != 0; bucket = (bucket + 1) & mask) {
+            int home = hash(indexKeys[bucket]) & mask;
+            if (((bucket - home) & mask) >= ((bucket - hole) & mask)) {
+                indexKeys[hole] = indexKeys[bucket];
+                indexSlots[hole] = indexSlots[bucket];
+                indexSlots[bucket] = 0;
+                hole = bucket;
+            }
+        }
+    }
+}
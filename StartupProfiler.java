@@ -0,0 +1,41 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class StartupProfiler {
+    private final long startNanos = System.nanoTime();
+    private long phaseStartNanos = startNanos;
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private long bytesRead;
+    private int records;
+
+    // Closes the current phase under the given name and starts the next one
+    public void endPhase(String name) {
+        long now = System.nanoTime();
+        addPhase(name, now - phaseStartNanos);
+        phaseStartNanos = now;
+    }
+
+    // Adds time to a phase measured elsewhere, e.g. overlapping pipeline stages
+    public void addPhase(String name, long nanos) {
+        phaseNanos.merge(name, nanos, Long::sum);
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead += bytes;
+    }
+
+    public void addRecords(int count) {
+        records += count;
+    }
+
+    public void printReport() {
+        long totalNanos = System.nanoTime() - startNanos;
+        double totalSeconds = totalNanos / 1e9;
+        System.out.println("Startup report:");
+        System.out.printf("  Bytes read: %,d | Records: %,d | Records/sec: %,.0f%n",
+                bytesRead, records, totalSeconds > 0 ? records / totalSeconds : 0.0);
+        phaseNanos.forEach((name, nanos) ->
+                System.out.printf("  %-12s %10.2f ms%n", name, nanos / 1e6));
+        System.out.printf("  %-12s %10.2f ms%n", "total", totalNanos / 1e6);
+    }
+}